@@ -2,6 +2,8 @@
  * Copyright (c) Matej Kandráč
  */
 
+import map.CompactLevel;
+import map.LevelCompactor;
 import map.MapFactory;
 import map.Tile;
 import solver.AStarSolver;
@@ -22,9 +24,11 @@ public class Main {
     public static void main(String[] args) throws IOException {
         // Generate map tiles
         Tile[][] map = MapFactory.loadFromFile("map3.txt");
-        AStarSolver solver = new AStarSolver(map, MapFactory.lastFinish);
+        // Remove tiles which sokoban can never reach
+        CompactLevel level = LevelCompactor.compact(map, MapFactory.lastSokoban, MapFactory.lastBox, MapFactory.lastFinish);
+        AStarSolver solver = new AStarSolver(level);
         // Solve problem
-        solver.solve(MapFactory.lastSokoban, MapFactory.lastBox);
+        solver.solve();
         // Print final result of solver
         System.out.println(solver.getResult());
     }
@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package benchmark;
+
+import map.LevelGenerator;
+import map.MapFactory;
+import map.Tile;
+import solver.AStarSolver;
+import solver.SolveOptions;
+
+import com.sun.management.GarbageCollectorMXBean;
+import com.sun.management.GcInfo;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ScalingHarness class solves suites of generated levels of growing size and records time, expansions and live heap
+ * of {@link AStarSolver} against size. Results are compared with stored baseline and harness fails (exit code 1)
+ * when scaling curve regresses, or when any size fails (a level times out or runs out of memory). Failed size is
+ * reported and remaining sizes are still measured.
+ * <p>
+ * Expansions do not depend on machine, so they have to be the same as in baseline. Time and live heap are compared
+ * as curves: value of every size is divided by value of the smallest size, and this ratio may not grow by more than
+ * threshold compared to the same ratio of baseline. Machine which recorded the baseline can be faster or slower,
+ * only the way values grow with size matters.
+ * <p>
+ * JIT compiles the solver differently in every JVM, which moves times of small sizes by tens of percent. Therefore
+ * sizes are measured in several new JVMs (forks) one after another and median of forks is used. Forks get the same
+ * JVM options as the harness.
+ * <p>
+ * Arguments (all optional):
+ * <ul>
+ *     <li>--sizes 25,50,100,200 - sizes of generated levels (up to 500, but sizes above 200 currently fail).
+ *     Smallest size is reference of curves, so it should take at least tens of microseconds to solve.</li>
+ *     <li>--levels 5 - number of levels per size (median is recorded)</li>
+ *     <li>--warmup 2000 - milliseconds of unmeasured solves of every size (JIT warmup)</li>
+ *     <li>--repeats 10 - number of time samples of every level (fastest is used)</li>
+ *     <li>--timeout 30 - maximum seconds of one solve, longer solve fails the size</li>
+ *     <li>--density 0.2 - wall density of generated levels</li>
+ *     <li>--corridors 0.1 - corridor ratio of generated levels</li>
+ *     <li>--seed 1 - seed of first level, following levels use following seeds</li>
+ *     <li>--baseline scaling-baseline.txt - path of baseline file</li>
+ *     <li>--threshold 1.5 - allowed growth of time and live heap curve compared to baseline curve</li>
+ *     <li>--forks 3 - number of JVMs which measure all sizes (median is used), 0 measures in this JVM</li>
+ *     <li>--record - writes measured values as new baseline instead of comparing</li>
+ *     <li>--fork - used internally, measures in this JVM and only prints measured values</li>
+ * </ul>
+ */
+public class ScalingHarness {
+
+    // One time sample solves a level repeatedly until it takes at least this long, so timer resolution and
+    // scheduling do not matter even for levels solved in microseconds
+    private static final long MIN_SAMPLE_NANOS = 20_000_000;
+
+    // Full collection may leave some dead objects in old generation (up to a few percent of its capacity) and compacts
+    // it completely only once per few collections (4 in HotSpot), so used heap is minimum of this many collections
+    private static final int GC_ROUNDS = 4;
+
+    /**
+     * Measured values of one size. Values are medians of all levels of that size.
+     * @param size size of levels
+     * @param timeMs solve time without garbage collection pauses in milliseconds
+     * @param expansions number of expanded nodes
+     * @param liveHeap heap retained by solver when search ends (frontier, handled states and paths) in bytes.
+     *                 Search only adds to them (apart from dropped frontier nodes), so this is its peak live heap
+     *                 without garbage, which would depend on garbage collector timing.
+     */
+    record Measurement(int size, double timeMs, long expansions, long liveHeap) {
+
+        String toLine() {
+            return size + " " + String.format(Locale.ROOT, "%.4f", timeMs) + " " + expansions + " " + liveHeap;
+        }
+
+        static Measurement fromLine(String line) {
+            String[] parts = line.trim().split("\\s+");
+            return new Measurement(Integer.parseInt(parts[0]), Double.parseDouble(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        }
+    }
+
+    // Options of harness
+    private int[] sizes = {25, 50, 100, 200};
+    private int levels = 5;
+    private long warmup = 2000;
+    private int repeats = 10;
+    private long timeout = 30;
+    private double density = 0.2;
+    private double corridors = 0.1;
+    private long seed = 1;
+    private String baseline = "scaling-baseline.txt";
+    private double threshold = 1.5;
+    private int forks = 3;
+    private boolean record = false;
+    private boolean fork = false;
+
+    // Sizes which failed in last run
+    private final List<Integer> failedSizes = new ArrayList<>();
+
+    /**
+     * Runs the harness.
+     * @param args see class documentation
+     * @throws IOException thrown when levels or baseline fail to read or write
+     */
+    public static void main(String[] args) throws IOException {
+        ScalingHarness harness = new ScalingHarness();
+        harness.parseArgs(args);
+        if (harness.fork) {
+            harness.run();
+            // Level which timed out can still run on executor thread
+            System.exit(0);
+        }
+        List<Measurement> measurements = harness.forks == 0 ? harness.run() : harness.runForks(args);
+        boolean passed;
+        if (harness.record) {
+            harness.writeBaseline(measurements);
+            System.out.println("Baseline written to " + harness.baseline);
+            passed = harness.failedSizes.isEmpty();
+        } else {
+            passed = harness.compare(measurements);
+        }
+        if (!harness.failedSizes.isEmpty()) {
+            System.out.println("Failed sizes: " + harness.failedSizes);
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--levels" -> levels = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Long.parseLong(args[++i]);
+                case "--repeats" -> repeats = Integer.parseInt(args[++i]);
+                case "--timeout" -> timeout = Long.parseLong(args[++i]);
+                case "--density" -> density = Double.parseDouble(args[++i]);
+                case "--corridors" -> corridors = Double.parseDouble(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--baseline" -> baseline = args[++i];
+                case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+                case "--forks" -> forks = Integer.parseInt(args[++i]);
+                case "--record" -> record = true;
+                case "--fork" -> fork = true;
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Generates and solves suite of every size. Sizes which fail are added to failed sizes.
+     * @return measurements of every size which did not fail
+     * @throws IOException thrown when levels fail to write or load
+     */
+    List<Measurement> run() throws IOException {
+        Path directory = Files.createTempDirectory("sokoban-levels");
+        // Dedicated thread, so a level which runs too long can be stopped by timeout
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Measurement> measurements = new ArrayList<>();
+        failedSizes.clear();
+        System.out.println("size timeMs expansions liveHeap");
+        try {
+            for (int size : sizes) {
+                try {
+                    Measurement measurement = measure(size, directory, executor);
+                    System.out.println(measurement.toLine());
+                    measurements.add(measurement);
+                } catch (IllegalStateException | OutOfMemoryError e) {
+                    System.out.println("size " + size + ": failed (" + e + ")");
+                    failedSizes.add(size);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            Files.delete(directory);
+        }
+        return measurements;
+    }
+
+    /**
+     * Runs {@link #run()} in forks one after another and combines them. Values of every size are medians of forks.
+     * Size fails if it fails in any fork.
+     * @param args arguments of harness, passed to forks
+     * @return measurements of every size which did not fail
+     * @throws IOException thrown when fork fails to start
+     */
+    List<Measurement> runForks(String[] args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScalingHarness.class.getName());
+        command.addAll(Arrays.asList(args));
+        command.add("--fork");
+
+        Map<Integer, List<Measurement>> forkMeasurements = new HashMap<>();
+        Set<Integer> failed = new HashSet<>();
+        for (int i = 1; i <= forks; i++) {
+            System.out.println("fork " + i + "/" + forks);
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            Set<Integer> measured = new HashSet<>();
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    System.out.println(line);
+                    // Lines of measured sizes start with size, other lines are header and failures
+                    if (!line.isEmpty() && Character.isDigit(line.charAt(0))) {
+                        Measurement measurement = Measurement.fromLine(line);
+                        forkMeasurements.computeIfAbsent(measurement.size(), size -> new ArrayList<>()).add(measurement);
+                        measured.add(measurement.size());
+                    }
+                }
+            }
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted", e);
+            }
+            // Size is missing also when fork crashed
+            for (int size : sizes) {
+                if (!measured.contains(size)) {
+                    failed.add(size);
+                }
+            }
+        }
+
+        failedSizes.clear();
+        List<Measurement> measurements = new ArrayList<>();
+        System.out.println("median of " + forks + " forks");
+        System.out.println("size timeMs expansions liveHeap");
+        for (int size : sizes) {
+            if (failed.contains(size)) {
+                failedSizes.add(size);
+                continue;
+            }
+            List<Measurement> values = forkMeasurements.get(size);
+            Measurement measurement = new Measurement(size,
+                    median(values.stream().mapToDouble(Measurement::timeMs).toArray()),
+                    (long) median(values.stream().mapToDouble(Measurement::expansions).toArray()),
+                    (long) median(values.stream().mapToDouble(Measurement::liveHeap).toArray()));
+            System.out.println(measurement.toLine());
+            measurements.add(measurement);
+        }
+        return measurements;
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    /**
+     * Generates suite of one size, warms it up and measures it.
+     * @param size size of levels
+     * @param directory directory for level files
+     * @param executor executor on which levels are solved
+     * @return measurement of size
+     * @throws IOException thrown when levels fail to write or load
+     */
+    private Measurement measure(int size, Path directory, ExecutorService executor) throws IOException {
+        LevelGenerator generator = new LevelGenerator(size, density, corridors);
+        Tile[][][] maps = new Tile[levels][][];
+        Tile[][] starts = new Tile[levels][];
+        for (int i = 0; i < levels; i++) {
+            // Levels go through file so the MapFactory format is exercised as well
+            Path file = directory.resolve("level-" + size + "-" + i + ".txt");
+            generator.writeToFile(file.toString(), seed + i);
+            maps[i] = MapFactory.loadFromFile(file.toString());
+            starts[i] = new Tile[]{MapFactory.lastSokoban, MapFactory.lastBox, MapFactory.lastFinish};
+            Files.delete(file);
+        }
+        // First solve of every level runs with timeout, so the measured solves below are known to end
+        long[] expansions = new long[levels];
+        for (int i = 0; i < levels; i++) {
+            expansions[i] = solve(maps[i], starts[i], executor, size, i).getExpandedNodes();
+        }
+        // Number of solves of one sample of every level. Adjusted during warmup, so a sample takes at least
+        // MIN_SAMPLE_NANOS also when JIT makes solver faster.
+        int[] batches = new int[levels];
+        Arrays.fill(batches, 1);
+        long warmupEnd = System.nanoTime() + warmup * 1_000_000L;
+        do {
+            for (int i = 0; i < levels; i++) {
+                long nanos = sample(maps[i], starts[i], batches[i]);
+                if (nanos < MIN_SAMPLE_NANOS) {
+                    batches[i] = (int) Math.min(Integer.MAX_VALUE,
+                            batches[i] * MIN_SAMPLE_NANOS / Math.max(1, nanos) + 1);
+                }
+            }
+        } while (System.nanoTime() - warmupEnd < 0);
+        double[] times = new double[levels];
+        long[] heaps = new long[levels];
+        for (int i = 0; i < levels; i++) {
+            // Fastest sample is the least affected by other processes
+            times[i] = Double.MAX_VALUE;
+            for (int repeat = 0; repeat < repeats; repeat++) {
+                times[i] = Math.min(times[i], sample(maps[i], starts[i], batches[i]) / 1_000_000.0 / batches[i]);
+            }
+            heaps[i] = liveHeap(maps[i], starts[i]);
+        }
+        Arrays.sort(times);
+        Arrays.sort(expansions);
+        Arrays.sort(heaps);
+        return new Measurement(size, times[levels / 2], expansions[levels / 2], heaps[levels / 2]);
+    }
+
+    /**
+     * Solves level repeatedly on this thread. Garbage collection pauses are not counted, their length depends on heap
+     * size and collector more than on solver (heap retained by solver is measured separately).
+     * @param map map tiles
+     * @param start sokoban, box and finish tiles
+     * @param batch number of solves
+     * @return time of all solves without garbage collection in nanoseconds
+     */
+    private long sample(Tile[][] map, Tile[] start, int batch) {
+        long gcMillis = gcMillis();
+        long begin = System.nanoTime();
+        for (int i = 0; i < batch; i++) {
+            new AStarSolver(map, start[2]).solve(start[0], start[1]);
+        }
+        long nanos = System.nanoTime() - begin;
+        return Math.max(0, nanos - (gcMillis() - gcMillis) * 1_000_000);
+    }
+
+    /**
+     * Sums time of all garbage collections so far.
+     * @return time in milliseconds
+     */
+    private long gcMillis() {
+        long millis = 0;
+        for (java.lang.management.GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Measures heap retained by solver when search ends. Own method, so no solver of previous measurement is still
+     * referenced from local variables of caller.
+     * @param map map tiles
+     * @param start sokoban, box and finish tiles
+     * @return live heap in bytes
+     */
+    private long liveHeap(Tile[][] map, Tile[] start) {
+        long before = heapAfterGc();
+        AStarSolver solver = new AStarSolver(map, start[2]);
+        solver.solve(start[0], start[1]);
+        long after = heapAfterGc();
+        // Solver has to stay reachable until its heap is measured
+        Reference.reachabilityFence(solver);
+        return after - before;
+    }
+
+    /**
+     * Solves level with timeout.
+     * @param map map tiles
+     * @param start sokoban, box and finish tiles
+     * @param executor executor on which level is solved
+     * @param size size of level (for error message)
+     * @param index index of level (for error message)
+     * @return solver which solved the level
+     * @throws IllegalStateException thrown when solve fails, times out or does not find solution
+     */
+    private AStarSolver solve(Tile[][] map, Tile[] start, ExecutorService executor, int size, int index) {
+        AStarSolver solver = new AStarSolver(map, start[2]);
+        SolveOptions options = SolveOptions.defaults(executor).withTimeout(Duration.ofSeconds(timeout));
+        String result;
+        try {
+            result = solver.solveAsync(start[0], start[1], options).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OutOfMemoryError error) {
+                throw error;
+            }
+            throw new IllegalStateException("Level " + index + " failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+        // Generated levels are always solvable, so missing solution is a solver bug
+        if (result.equals("There is no solution")) {
+            throw new IllegalStateException("Generated level was not solved: size=" + size + ", seed=" + (seed + index));
+        }
+        return solver;
+    }
+
+    /**
+     * Collects garbage and gets used heap right after the collection.
+     * @return used heap in bytes
+     */
+    private long heapAfterGc() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            used = Math.min(used, heapAfterLastGc());
+        }
+        return used;
+    }
+
+    /**
+     * Sums used memory of heap pools right after last collection, as recorded by the collector. Current usage would
+     * also count memory allocated after the collection (whole allocation buffers of threads), which is kilobytes
+     * of noise.
+     * @return used heap in bytes
+     */
+    private long heapAfterLastGc() {
+        // Collector can run young collection right before the full one in the same millisecond, so on equal end time
+        // collector of more pools (the full one) is used
+        GcInfo last = null;
+        int lastPools = 0;
+        for (java.lang.management.GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof GarbageCollectorMXBean bean && bean.getLastGcInfo() != null) {
+                GcInfo info = bean.getLastGcInfo();
+                int pools = bean.getMemoryPoolNames().length;
+                if (last == null || info.getEndTime() > last.getEndTime()
+                        || (info.getEndTime() == last.getEndTime() && pools > lastPools)) {
+                    last = info;
+                    lastPools = pools;
+                }
+            }
+        }
+        if (last == null) {
+            throw new IllegalStateException("Garbage collector does not provide usage after collection.");
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && last.getMemoryUsageAfterGc().containsKey(pool.getName())) {
+                used += last.getMemoryUsageAfterGc().get(pool.getName()).getUsed();
+            }
+        }
+        return used;
+    }
+
+    private void writeBaseline(List<Measurement> measurements) throws IOException {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(baseline));
+        bw.write("# size timeMs expansions liveHeap");
+        for (Measurement measurement : measurements) {
+            bw.newLine();
+            bw.write(measurement.toLine());
+        }
+        bw.close();
+    }
+
+    private Map<Integer, Measurement> readBaseline() throws IOException {
+        Map<Integer, Measurement> measurements = new HashMap<>();
+        BufferedReader br = new BufferedReader(new FileReader(baseline));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                Measurement measurement = Measurement.fromLine(line);
+                measurements.put(measurement.size(), measurement);
+            }
+        }
+        br.close();
+        return measurements;
+    }
+
+    /**
+     * Compares measurements with baseline. Sizes which are not in baseline are skipped. Time and live heap curves are
+     * relative to the smallest size which is in both measurements and baseline.
+     * @param measurements measured values
+     * @return false if expansions changed or curve regressed past threshold
+     * @throws IOException thrown when baseline fails to load
+     */
+    boolean compare(List<Measurement> measurements) throws IOException {
+        Map<Integer, Measurement> baselines = readBaseline();
+        boolean passed = failedSizes.isEmpty();
+        Measurement currentReference = null;
+        Measurement baseReference = null;
+        List<Measurement> sorted = new ArrayList<>(measurements);
+        sorted.sort(Comparator.comparingInt(Measurement::size));
+        for (Measurement current : sorted) {
+            Measurement base = baselines.get(current.size());
+            if (base == null) {
+                System.out.println("size " + current.size() + ": no baseline, skipped");
+                continue;
+            }
+            if (current.expansions() != base.expansions()) {
+                // Search is deterministic, so any change is a change of solver (record new baseline if intended)
+                System.out.println("size " + current.size() + ": expansions changed " + base.expansions() + " -> "
+                        + current.expansions());
+                passed = false;
+            }
+            if (currentReference == null) {
+                currentReference = current;
+                baseReference = base;
+                continue;
+            }
+            passed &= check(current.size(), "time", current.timeMs() / currentReference.timeMs(),
+                    base.timeMs() / baseReference.timeMs(), baseReference.size());
+            passed &= check(current.size(), "live heap", (double) current.liveHeap() / currentReference.liveHeap(),
+                    (double) base.liveHeap() / baseReference.liveHeap(), baseReference.size());
+        }
+        System.out.println(passed ? "Scaling within threshold " + threshold : "Scaling regressed past threshold " + threshold);
+        return passed;
+    }
+
+    /**
+     * Checks one point of curve.
+     * @param size size of point
+     * @param name name of measured value
+     * @param current current value divided by current value of reference size
+     * @param base baseline value divided by baseline value of reference size
+     * @param referenceSize size to which values are relative
+     * @return false if current point regressed past threshold
+     */
+    private boolean check(int size, String name, double current, double base, int referenceSize) {
+        if (current > base * threshold) {
+            System.out.printf(Locale.ROOT, "size %d: %s curve regressed %.2fx -> %.2fx of size %d (%.2fx)%n", size,
+                    name, base, current, referenceSize, current / base);
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package map;
+
+/**
+ * CellIndex record numbers walkable tiles of map from 0 to count - 1 in row order.
+ * Arrays with value per walkable tile (like visit maps of solver) can then have size count instead of map size.
+ * @param index index of tile (x,y) is index[y][x], -1 for tiles which are not walkable
+ * @param count number of walkable tiles
+ */
+public record CellIndex(int[][] index, int count) {
+
+    /**
+     * Numbers walkable tiles of map.
+     * @param map map tiles (may be rectangular)
+     * @return index of walkable tiles
+     */
+    public static CellIndex of(Tile[][] map) {
+        int[][] index = new int[map.length][];
+        int count = 0;
+        for (int y = 0; y < map.length; y++) {
+            index[y] = new int[map[y].length];
+            for (int x = 0; x < map[y].length; x++) {
+                index[y][x] = map[y][x].walkable() ? count++ : -1;
+            }
+        }
+        return new CellIndex(index, count);
+    }
+
+    /**
+     * Gets index of tile.
+     * @param tile walkable tile
+     * @return index of tile, -1 if tile is not walkable
+     */
+    public int indexOf(Tile tile) {
+        return index[tile.y()][tile.x()];
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package map;
+
+/**
+ * CompactLevel record holds level created by {@link LevelCompactor} together with mapping to original coordinates.
+ * Tile (x,y) of compacted map is tile (x + offsetX, y + offsetY) of original map.
+ * @param map compacted map tiles (may be rectangular)
+ * @param sokoban sokoban position in compacted map
+ * @param box box position in compacted map
+ * @param finish finish position in compacted map
+ * @param originalMap map tiles before compaction
+ * @param offsetX x of compacted map origin in original map
+ * @param offsetY y of compacted map origin in original map
+ * @param cells dense index of walkable tiles of compacted map (tiles reachable by sokoban, box and finish)
+ */
+public record CompactLevel(Tile[][] map, Tile sokoban, Tile box, Tile finish,
+                           Tile[][] originalMap, int offsetX, int offsetY, CellIndex cells) {
+
+    /**
+     * Converts tile of compacted map to tile of original map.
+     * @param tile tile of compacted map
+     * @return tile on the same position in original map
+     */
+    public Tile toOriginal(Tile tile) {
+        return originalMap[tile.y() + offsetY][tile.x() + offsetX];
+    }
+
+    /**
+     * Converts position in original map to tile of compacted map.
+     * @param tile position in original map
+     * @return tile on the same position in compacted map
+     * @throws IllegalArgumentException thrown when position was cropped away
+     */
+    public Tile toCompact(Tile tile) {
+        int x = tile.x() - offsetX;
+        int y = tile.y() - offsetY;
+        if (y < 0 || y >= map.length || x < 0 || x >= map[0].length) {
+            throw new IllegalArgumentException("Position is outside of compacted level: " + tile);
+        }
+        return map[y][x];
+    }
+}
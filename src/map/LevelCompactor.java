@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package map;
+
+/**
+ * LevelCompactor class removes parts of level which sokoban can never reach before solving.
+ * Walkable tiles which are not reachable from sokoban become walls and the map is cropped to bounding box of reachable
+ * tiles, box and finish. Tiles are renumbered from 0 in the cropped map and walkable tiles get dense indexes
+ * ({@link CellIndex}), so per tile arrays of solver only have entry for tiles which sokoban can reach.
+ * Box can only move to tiles where sokoban can walk and edge of map is handled the same way as a wall by the solver,
+ * so compaction does not change the solution.
+ */
+public class LevelCompactor {
+
+    // Since this is a static class, make constructor private to disable instance creation
+    private LevelCompactor(){}
+
+    /**
+     * Compacts level.
+     * @param map map tiles
+     * @param sokoban sokoban position
+     * @param box box position
+     * @param finish finish position
+     * @return compacted level
+     */
+    public static CompactLevel compact(Tile[][] map, Tile sokoban, Tile box, Tile finish) {
+        // All required fields have to be defined
+        if (box == null || sokoban == null || finish == null) {
+            throw new IllegalStateException("Some required fields are missing on map.");
+        }
+        int height = map.length;
+        int width = map[0].length;
+        boolean[] reachable = floodFill(map, sokoban);
+
+        // Bounding box of reachable tiles, box and finish
+        int minX = Math.min(box.x(), finish.x());
+        int maxX = Math.max(box.x(), finish.x());
+        int minY = Math.min(box.y(), finish.y());
+        int maxY = Math.max(box.y(), finish.y());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (reachable[y * width + x]) {
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+
+        // Create renumbered tiles
+        Tile[][] compacted = new Tile[maxY - minY + 1][maxX - minX + 1];
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                compacted[y - minY][x - minX] = new Tile(x - minX, y - minY, reachable[y * width + x]);
+            }
+        }
+        // Box and finish keep their walkability, even if they are not reachable (then there is no solution)
+        compacted[box.y() - minY][box.x() - minX] = new Tile(box.x() - minX, box.y() - minY, box.walkable());
+        compacted[finish.y() - minY][finish.x() - minX] = new Tile(finish.x() - minX, finish.y() - minY, finish.walkable());
+
+        return new CompactLevel(
+                compacted,
+                compacted[sokoban.y() - minY][sokoban.x() - minX],
+                compacted[box.y() - minY][box.x() - minX],
+                compacted[finish.y() - minY][finish.x() - minX],
+                map,
+                minX,
+                minY,
+                CellIndex.of(compacted)
+        );
+    }
+
+    /**
+     * Finds all walkable tiles reachable from sokoban. Box does not block the way, since it can be pushed.
+     * @param map map tiles
+     * @param sokoban sokoban position
+     * @return reachable flags, index of tile (x,y) is y * width + x
+     */
+    private static boolean[] floodFill(Tile[][] map, Tile sokoban) {
+        int height = map.length;
+        int width = map[0].length;
+        boolean[] reachable = new boolean[width * height];
+        // Every tile is added to queue at most once, so array of map size is enough
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = sokoban.y() * width + sokoban.x();
+        reachable[queue[0]] = true;
+        while (head < tail) {
+            int index = queue[head++];
+            int x = index % width;
+            int y = index / width;
+            if (x > 0) tail = visit(map, reachable, queue, tail, x - 1, y);
+            if (x < width - 1) tail = visit(map, reachable, queue, tail, x + 1, y);
+            if (y > 0) tail = visit(map, reachable, queue, tail, x, y - 1);
+            if (y < height - 1) tail = visit(map, reachable, queue, tail, x, y + 1);
+        }
+        return reachable;
+    }
+
+    /**
+     * Adds tile to queue if it is walkable and was not reached yet.
+     * @return new tail of queue
+     */
+    private static int visit(Tile[][] map, boolean[] reachable, int[] queue, int tail, int x, int y) {
+        int index = y * map[0].length + x;
+        if (!reachable[index] && map[y][x].walkable()) {
+            reachable[index] = true;
+            queue[tail++] = index;
+        }
+        return tail;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package map;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * LevelGenerator class creates random single box levels in the {@link MapFactory} file format.
+ * Levels are generated from seed, so the same seed and parameters always produce the same level.
+ * Every generated level is solvable, because the box can be pushed to the finish along a carved lane
+ * which is 3 tiles wide, so sokoban can always walk around the box to the side it needs.
+ * Lane makes detours through random waypoints, so walls and corridors decide how much of the direct way is open.
+ */
+public class LevelGenerator {
+
+    // Smallest size which can hold the push lane
+    public static final int MIN_SIZE = 5;
+
+    // Largest supported size of map
+    public static final int MAX_SIZE = 500;
+
+    // Lane gets one more waypoint for every this many tiles of size
+    private static final int WAYPOINT_SPACING = 25;
+
+    // Map characters, same as in map files
+    private static final char WALL = 'X';
+    private static final char FLOOR = '-';
+    private static final char SOKOBAN = 'S';
+    private static final char BOX = 'B';
+    private static final char FINISH = 'F';
+
+    // Size of map
+    private final int size;
+
+    // Probability (0-1) that a tile outside of lane and corridors is a wall
+    private final double wallDensity;
+
+    // Ratio (0-1) of corridors. Number of carved corridors is corridorRatio * size
+    private final double corridorRatio;
+
+    /**
+     * Base constructor validates parameters of generated levels.
+     * @param size size of map ({@link #MIN_SIZE} - {@link #MAX_SIZE})
+     * @param wallDensity probability that free tile is a wall (0-1)
+     * @param corridorRatio ratio of one tile wide corridors (0-1)
+     */
+    public LevelGenerator(int size, double wallDensity, double corridorRatio) {
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Size must be between " + MIN_SIZE + " and " + MAX_SIZE + ": " + size);
+        }
+        if (wallDensity < 0 || wallDensity > 1 || corridorRatio < 0 || corridorRatio > 1) {
+            throw new IllegalArgumentException("Wall density and corridor ratio must be between 0 and 1.");
+        }
+        this.size = size;
+        this.wallDensity = wallDensity;
+        this.corridorRatio = corridorRatio;
+    }
+
+    /**
+     * Generates level characters. Rows are indexed by y, columns by x.
+     * @param seed seed of random generator
+     * @return generated level
+     */
+    public char[][] generate(long seed) {
+        Random random = new Random(seed);
+        char[][] level = new char[size][size];
+        // null character marks tiles which were not decided yet
+        carveCorridors(level, random);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (level[y][x] == 0) {
+                    level[y][x] = random.nextDouble() < wallDensity ? WALL : FLOOR;
+                }
+            }
+        }
+        carveLane(level, random);
+        return level;
+    }
+
+    /**
+     * Generates level and writes it to file. Written file can be loaded with {@link MapFactory#loadFromFile(String)}.
+     * @param path path of file
+     * @param seed seed of random generator
+     * @throws IOException thrown when file fails to write
+     */
+    public void writeToFile(String path, long seed) throws IOException {
+        char[][] level = generate(seed);
+        BufferedWriter bw = new BufferedWriter(new FileWriter(path));
+        // First line contains size of map
+        bw.write(Integer.toString(size));
+        for (char[] row : level) {
+            bw.newLine();
+            bw.write(row);
+        }
+        bw.close();
+    }
+
+    /**
+     * Carves straight corridors (one floor tile wide, walls on both sides) at random positions.
+     * @param level level to carve to
+     * @param random random generator
+     */
+    private void carveCorridors(char[][] level, Random random) {
+        int corridors = (int) Math.round(corridorRatio * size);
+        for (int i = 0; i < corridors; i++) {
+            boolean horizontal = random.nextBoolean();
+            int length = 2 + random.nextInt(size - 1);
+            int fixed = random.nextInt(size);
+            int start = random.nextInt(size);
+            for (int j = start; j < Math.min(size, start + length); j++) {
+                int x = horizontal ? j : fixed;
+                int y = horizontal ? fixed : j;
+                level[y][x] = FLOOR;
+                // Walls on both sides of corridor, but do not break other corridors
+                setIfFree(level, horizontal ? x : x - 1, horizontal ? y - 1 : y, WALL);
+                setIfFree(level, horizontal ? x : x + 1, horizontal ? y + 1 : y, WALL);
+            }
+        }
+    }
+
+    /**
+     * Carves lane in which the box is pushed to the finish through random waypoints. Between two waypoints the box is
+     * pushed first horizontally and then vertically, so the lane turns and makes detours away from the finish.
+     * Lane is 3 tiles wide and one tile longer on both ends of every part, so sokoban can always get behind the box.
+     * @param level level to carve to
+     * @param random random generator
+     */
+    private void carveLane(char[][] level, Random random) {
+        // Lane has to leave space for one tile on both sides of the box
+        int boxX = 1 + random.nextInt(size - 2);
+        int boxY = 1 + random.nextInt(size - 2);
+        int finishX;
+        int finishY;
+        do {
+            finishX = 1 + random.nextInt(size - 2);
+            finishY = 1 + random.nextInt(size - 2);
+        } while (finishX == boxX && finishY == boxY);
+
+        int x = boxX;
+        int y = boxY;
+        int waypoints = 1 + size / WAYPOINT_SPACING;
+        for (int i = 0; i <= waypoints; i++) {
+            // Last waypoint is the finish
+            int nextX = i == waypoints ? finishX : 1 + random.nextInt(size - 2);
+            int nextY = i == waypoints ? finishY : 1 + random.nextInt(size - 2);
+            // Horizontal part of lane
+            fill(level, Math.min(x, nextX) - 1, y - 1, Math.max(x, nextX) + 1, y + 1);
+            // Vertical part of lane
+            fill(level, nextX - 1, Math.min(y, nextY) - 1, nextX + 1, Math.max(y, nextY) + 1);
+            x = nextX;
+            y = nextY;
+        }
+
+        // Sokoban starts next to the box, from there it can walk around the box in the lane
+        int sokobanY = boxY - 1 == finishY && boxX == finishX ? boxY + 1 : boxY - 1;
+        level[sokobanY][boxX] = SOKOBAN;
+        level[boxY][boxX] = BOX;
+        level[finishY][finishX] = FINISH;
+    }
+
+    /**
+     * Fills rectangle with floor. Parts of rectangle outside of map are ignored.
+     */
+    private void fill(char[][] level, int fromX, int fromY, int toX, int toY) {
+        for (int y = Math.max(0, fromY); y <= Math.min(size - 1, toY); y++) {
+            for (int x = Math.max(0, fromX); x <= Math.min(size - 1, toX); x++) {
+                level[y][x] = FLOOR;
+            }
+        }
+    }
+
+    /**
+     * Sets tile if it is inside of map and was not decided yet.
+     */
+    private void setIfFree(char[][] level, int x, int y, char c) {
+        if (x >= 0 && y >= 0 && x < size && y < size && level[y][x] == 0) {
+            level[y][x] = c;
+        }
+    }
+
+}
@@ -63,6 +63,7 @@ public class MapFactory {
         BufferedReader br = new BufferedReader(new FileReader(path));
         // First line contains size of map
         size = Integer.parseInt(br.readLine());
+        x = 0;
         y = 0;
         Tile[][] map = new Tile[size][size];
         String line;
@@ -78,34 +79,15 @@ public class MapFactory {
                     map[y][x] = walkable(true);
                 } else if (c == 'F') {
                     lastFinish = walkable(true);
-                    // Corner case: box is on bottom right corner (x:size y:size). Since y and x auto increments we need to
-                    // set them manually. This applies for every special field.
-                    if (y == size) {
-                        y--;
-                        x = size-1;
-                        map[y][x] = lastFinish;
-                    }
-                    else {
-                        map[y][x-1] = lastFinish;
-                    }
+                    // Since y and x auto increment (and wrap at the end of a row), place the tile by its own position.
+                    // This applies for every special field.
+                    map[lastFinish.y()][lastFinish.x()] = lastFinish;
                 } else if (c == 'S') {
                     lastSokoban = walkable(true);
-                    if (y == size) {
-                        y--;
-                        x = size-1;
-                        map[y][x] = lastSokoban;
-                    } else {
-                        map[y][x - 1] = lastSokoban;
-                    }
+                    map[lastSokoban.y()][lastSokoban.x()] = lastSokoban;
                 } else if (c == 'B') {
                     lastBox = walkable(true);
-                    if (y == size) {
-                        y--;
-                        x = size-1;
-                        map[y][x] = lastBox;
-                    } else {
-                        map[y][x-1] = lastBox;
-                    }
+                    map[lastBox.y()][lastBox.x()] = lastBox;
                 } else {
                     throw new IllegalStateException("INVALID CHARACTER IN MAP FILE: " + c);
                 }
@@ -28,7 +28,7 @@ public record Tile(int x, int y, boolean walkable) {
      * @return right child
      */
     public Tile right(Tile[][] map) {
-        if (x == map.length - 1) {
+        if (x == map[y].length - 1) {
             return null;
         }
         return map[y][x + 1];
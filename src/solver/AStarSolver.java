@@ -4,9 +4,14 @@
 
 package solver;
 
+import map.CellIndex;
+import map.CompactLevel;
 import map.Tile;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AStartSolver class contains ACTIONS which sokoban can do as well as algorithm to solve the problem.
@@ -44,29 +49,162 @@ public class AStarSolver implements SolverCommons {
     // Set used to handle same states
     private final HashSet<String> existedStates;
 
+    // Number of visited (expanded) nodes
+    private long expandedNodes;
+
+    // Compacted level which is solved. Null if map was not compacted.
+    private final CompactLevel compactLevel;
+
+    // Dense index of walkable tiles. Visit maps have one value per walkable tile.
+    private final CellIndex cells;
+
     /**
      * Base constructor initializes fields and sets comparator.
      * @param map static map tiles
      * @param finish static finish node
      */
     public AStarSolver(Tile[][] map, Tile finish) {
+        this(map, finish, null);
+    }
+
+    /**
+     * Constructor for level compacted by {@link map.LevelCompactor}. Solve it with {@link #solve()}, or pass original
+     * positions to {@link #solve(Tile, Tile)}. Printed maps show original map and positions.
+     * @param level compacted level
+     */
+    public AStarSolver(CompactLevel level) {
+        this(level.map(), level.finish(), level);
+    }
+
+    private AStarSolver(Tile[][] map, Tile finish, CompactLevel compactLevel) {
         this.map = map;
+        this.compactLevel = compactLevel;
+        this.cells = compactLevel != null ? compactLevel.cells() : CellIndex.of(map);
         this.finish = finish;
         unvisitedNodes = new PriorityQueue<>(Comparator.comparingInt(Node::getFCost));
         existedStates = new HashSet<>();
     }
 
     /**
-     * Solve method of problem.
+     * Solve method of problem. Blocks until search ends.
+     * For compacted level, positions are positions in original map (like {@link map.MapFactory#lastSokoban}).
      * @param sokoban Start sokoban position
      * @param box Start box position
      */
     @Override
     public void solve(Tile sokoban, Tile box) {
+        search(toSolverTile(sokoban), toSolverTile(box), null);
+    }
+
+    /**
+     * Solves compacted level from its sokoban and box positions. Blocks until search ends.
+     */
+    public void solve() {
+        CompactLevel level = requireLevel();
+        search(level.sokoban(), level.box(), null);
+    }
+
+    /**
+     * Solves problem on executor of options. Timeout is measured from this call, so it includes time in executor queue.
+     * Solve calls on the same solver run one after another and every call starts a new search.
+     * For compacted level, positions are positions in original map (like {@link map.MapFactory#lastSokoban}).
+     * @param sokoban Start sokoban position
+     * @param box Start box position
+     * @param options timeout, progress listener and executor of search
+     * @return future completed with {@link #getResult()}
+     */
+    @Override
+    public CompletableFuture<String> solveAsync(Tile sokoban, Tile box, SolveOptions options) {
+        return startSearch(toSolverTile(sokoban), toSolverTile(box), options);
+    }
+
+    /**
+     * Solves compacted level from its sokoban and box positions on executor of options.
+     * See {@link #solveAsync(Tile, Tile, SolveOptions)}.
+     * @param options timeout, progress listener and executor of search
+     * @return future completed with {@link #getResult()}
+     */
+    public CompletableFuture<String> solveAsync(SolveOptions options) {
+        CompactLevel level = requireLevel();
+        return startSearch(level.sokoban(), level.box(), options);
+    }
+
+    /**
+     * Gets compacted level of solver.
+     * @return compacted level
+     * @throws IllegalStateException thrown when solver was not created for compacted level
+     */
+    private CompactLevel requireLevel() {
+        if (compactLevel == null) {
+            throw new IllegalStateException("Solver was not created for compacted level.");
+        }
+        return compactLevel;
+    }
+
+    /**
+     * Converts position given to solve method to tile of solved map. Only compacted level has different positions.
+     * @param tile position in original map, can be null
+     * @return tile of solved map
+     */
+    private Tile toSolverTile(Tile tile) {
+        return compactLevel == null || tile == null ? tile : compactLevel.toCompact(tile);
+    }
+
+    /**
+     * Starts search on executor of options.
+     * @param sokoban Start sokoban position in solved map
+     * @param box Start box position in solved map
+     * @param options timeout, progress listener and executor of search
+     * @return future completed with {@link #getResult()}
+     */
+    private CompletableFuture<String> startSearch(Tile sokoban, Tile box, SolveOptions options) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (options.timeout() != null) {
+            // Completes future with TimeoutException even if search did not start yet. Running search then stops.
+            future.orTimeout(options.timeout().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        SolveControl control = new SolveControl(future, options);
+        try {
+            options.executor().execute(() -> {
+                // Future could be cancelled or timed out before search started
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    // Result and final progress are created by search while it holds the lock. Solver fields can
+                    // already belong to the next search here.
+                    String result = search(sokoban, box, control);
+                    if (result != null) {
+                        control.reportFinish();
+                        future.complete(result);
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * A* search of problem. Clears state of previous search, so the solver can be reused (also after cancel).
+     * Synchronized, so searches of one solver never run at the same time.
+     * @param sokoban Start sokoban position
+     * @param box Start box position
+     * @param control checked after every expansion. Can be null if search can not be stopped.
+     * @return result of search (see {@link #getResult()}), or null if search was stopped by control
+     */
+    private synchronized String search(Tile sokoban, Tile box, SolveControl control) {
         // All required fields have to be defined
         if (box == null || sokoban == null || finish == null) {
             throw new IllegalStateException("Some required fields are missing on map.");
         }
+        unvisitedNodes.clear();
+        existedStates.clear();
+        finalNode = null;
+        expandedNodes = 0;
         // Creates initial Nodes and adds them to unvisited list
         for (Tile destinationTile : getDestinations(box, sokoban)) {
             Node node = new Node(destinationTile, null, cleanMap(), sokoban, box, 0, null, finish);
@@ -80,7 +218,16 @@ public class AStarSolver implements SolverCommons {
             Node nodeToVisit = unvisitedNodes.poll();
             // Visits the node
             visitNode(nodeToVisit);
+            expandedNodes++;
+            // Checked after every expansion, since one expansion of a large map can take milliseconds
+            if (control != null && control.shouldStop(expandedNodes, unvisitedNodes)) {
+                return null;
+            }
+        }
+        if (control != null) {
+            control.finish(expandedNodes, unvisitedNodes);
         }
+        return getResult();
     }
 
 
@@ -99,8 +246,8 @@ public class AStarSolver implements SolverCommons {
      * @param node Node to visit
      */
     void walk(Node node) {
-        boolean[][] newMap = node.getVisitMap();
-        newMap[node.getSokoban().y()][node.getSokoban().x()] = true;
+        boolean[] newMap = node.getVisitMap();
+        newMap[cells.indexOf(node.getSokoban())] = true;
 
         // Attempt to walk in every direction
         walkAction(node, node.getSokoban().left(map), newMap, node.getSokoban().copyOffset(-1, 0), ACTION_WALK_LEFT);
@@ -116,15 +263,15 @@ public class AStarSolver implements SolverCommons {
      * Walk function determines if walk is possible and if so, creates new node.
      * @param parentNode Parent node
      * @param neighbor Tile where sokoban should move
-     * @param newMap boolean map of visited nodes
+     * @param newMap visited flags of walkable tiles
      * @param sokoban New sokoban position
      * @param action Action which will be used
      */
-    void walkAction(Node parentNode, Tile neighbor, boolean[][] newMap, Tile sokoban, String action) {
+    void walkAction(Node parentNode, Tile neighbor, boolean[] newMap, Tile sokoban, String action) {
         // If there is a neighbor (is not edge of map) and is walkable and it is not the box (we cant walk on box)
         if (neighbor != null && neighbor.walkable() && !neighbor.equals(parentNode.getBox())) {
             // if the node is not visited yet and was not handled before, add it to unvisited nodes and increment G-cost
-            if (!parentNode.getVisitMap()[neighbor.y()][neighbor.x()]){
+            if (!parentNode.getVisitMap()[cells.indexOf(neighbor)]){
                 Node newNode = new Node(
                         parentNode.getDestination(),
                         parentNode,
@@ -272,7 +419,7 @@ public class AStarSolver implements SolverCommons {
         if (tile.y() == 0 || !map[tile.y() - 1][tile.x()].walkable()) {
             topBlocked = true;
         }
-        if (tile.x() == map.length - 1 || !map[tile.y()][tile.x() + 1].walkable()) {
+        if (tile.x() == map[0].length - 1 || !map[tile.y()][tile.x() + 1].walkable()) {
             rightBlocked = true;
         }
         if (topBlocked && rightBlocked) {
@@ -296,23 +443,34 @@ public class AStarSolver implements SolverCommons {
     boolean isBlocked(Tile tile, Tile box) {
         int counter = 0;
         if (tile.y() == 0 || !map[tile.y() - 1][tile.x()].walkable() || map[tile.y() - 1][tile.x()].equals(box)) counter++;
-        if (tile.x() == map.length - 1 || !map[tile.y()][tile.x() + 1].walkable() || map[tile.y()][tile.x() + 1].equals(box)) counter++;
+        if (tile.x() == map[0].length - 1 || !map[tile.y()][tile.x() + 1].walkable() || map[tile.y()][tile.x() + 1].equals(box)) counter++;
         if (tile.y() == map.length - 1 || !map[tile.y() + 1][tile.x()].walkable() || map[tile.y() + 1][tile.x()].equals(box)) counter++;
         if (tile.x() == 0 || !map[tile.y()][tile.x() - 1].walkable() || map[tile.y()][tile.x() - 1].equals(box)) counter++;
         return counter == 4;
     }
 
     /**
-     * Creates new empty boolean map which is used by nodes to determine visited tiles.
-     * @return 2D boolean array witch all values false
+     * Gets number of nodes visited by last search. Use {@link SolveProgress} of the future when solving asynchronously,
+     * since another solve call can start a new search.
+     * @return number of expanded nodes
+     */
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Creates new empty visit map which is used by nodes to determine visited tiles. Only walkable tiles have a value,
+     * tile (x,y) has index {@link CellIndex#indexOf(Tile)}.
+     * @return boolean array witch all values false
      */
-    public boolean[][] cleanMap() {
-        return new boolean[map.length][map.length];
+    public boolean[] cleanMap() {
+        return new boolean[cells.count()];
     }
 
     /**
-     * Gets the string result of path in actions taken.
-     * Uncomment commented lines if you want to print the maps of final nodes.
+     * Gets the string result of path in actions taken. Actions are relative, so they are the same for compacted level.
+     * Use {@link #printPath()} if you want to print the maps of final nodes.
+     * Result is of the last search. Use result of the future when solving asynchronously.
      * @return String containing the path
      */
     @Override
@@ -322,17 +480,28 @@ public class AStarSolver implements SolverCommons {
         }
         StringBuilder path = new StringBuilder();
         Node current = finalNode;
-//        List<Node> nodes = new ArrayList<>();
         while (current != null) {
-//            nodes.add(current);
             if (current.getStep() != null) {
                 path.insert(0, current.getStep());
             }
             current = current.getParent();
         }
-//        for (int i = nodes.size()-1; i >= 0; i--) {
-//            nodes.get(i).printMap(map, finish);
-//        }
         return path.toString();
     }
+
+    /**
+     * Prints maps of all nodes of final path. Compacted level is printed on original map with original positions.
+     */
+    public void printPath() {
+        List<Node> nodes = new ArrayList<>();
+        Node current = finalNode;
+        while (current != null) {
+            nodes.add(current);
+            current = current.getParent();
+        }
+        for (int i = nodes.size()-1; i >= 0; i--) {
+            if (compactLevel != null) nodes.get(i).printMap(compactLevel);
+            else nodes.get(i).printMap(map, finish);
+        }
+    }
 }
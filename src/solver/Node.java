@@ -4,6 +4,7 @@
 
 package solver;
 
+import map.CompactLevel;
 import map.Tile;
 
 /**
@@ -19,8 +20,8 @@ public class Node {
     private final Tile destination;
     // Parent node of this node
     private final Node parent;
-    // Visit map contains boolean map with visited nodes (This array is different for each new destination)
-    private final boolean[][] visitMap;
+    // Visit map contains visited flags of walkable tiles (This array is different for each new destination)
+    private final boolean[] visitMap;
     // Sokoban tile
     private final Tile sokoban;
     // Box tile
@@ -29,7 +30,7 @@ public class Node {
     private final String step;
 
     // Default constructor
-    public Node(Tile destination, Node parent, boolean[][] visitMap, Tile sokoban, Tile box, int gCost, String step, Tile end) {
+    public Node(Tile destination, Node parent, boolean[] visitMap, Tile sokoban, Tile box, int gCost, String step, Tile end) {
         this.destination = destination;
         this.parent = parent;
         this.visitMap = visitMap;
@@ -72,7 +73,7 @@ public class Node {
         return fCost;
     }
 
-    public boolean[][] getVisitMap() {
+    public boolean[] getVisitMap() {
         return visitMap;
     }
 
@@ -89,9 +90,9 @@ public class Node {
      * @return formatted positions of box and destination
      */
     public String stateString() {
-        return Integer.toString(box.x()) + Integer.toString(box.y()) +
-                Integer.toString(destination.x()) + Integer.toString(destination.y()) +
-                Integer.toString(sokoban.x()) + Integer.toString(sokoban.y());
+        // Separators are required, otherwise positions like (1,11) and (11,1) have the same string
+        return box.x() + "," + box.y() + ";" + destination.x() + "," + destination.y() + ";" +
+                sokoban.x() + "," + sokoban.y();
     }
 
     /**
@@ -111,15 +112,34 @@ public class Node {
      * @param finish Finish tile
      */
     public void printMap(Tile[][] map, Tile finish) {
+        printMap(map, finish, 0, 0);
+    }
+
+    /**
+     * Prints original map of compacted level based on node. Node positions are converted to original positions.
+     * @param level compacted level which was solved
+     */
+    public void printMap(CompactLevel level) {
+        printMap(level.originalMap(), level.toOriginal(level.finish()), level.offsetX(), level.offsetY());
+    }
+
+    /**
+     * Prints map based on node, where node positions are moved by offset.
+     * @param map Map tiles
+     * @param finish Finish tile
+     * @param offsetX x offset of node positions
+     * @param offsetY y offset of node positions
+     */
+    private void printMap(Tile[][] map, Tile finish, int offsetX, int offsetY) {
         for (int y = 0; y < map.length; y++) {
-            for (int x = 0; x < map.length; x++) {
-                if (x == sokoban.x() && y == sokoban.y()) {
+            for (int x = 0; x < map[y].length; x++) {
+                if (x == sokoban.x() + offsetX && y == sokoban.y() + offsetY) {
                     System.out.print("S");
-                } else if (x == box.x() && y == box.y()) {
+                } else if (x == box.x() + offsetX && y == box.y() + offsetY) {
                     System.out.print("B");
                 } else if (x == finish.x() && y == finish.y()) {
                     System.out.print("F");
-                } else if (destination != null && x == destination.x() && y == destination.y()) {
+                } else if (destination != null && x == destination.x() + offsetX && y == destination.y() + offsetY) {
                     System.out.print("D");
                 }
                 else if (map[y][x].walkable()) {
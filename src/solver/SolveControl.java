@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package solver;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * SolveControl class connects running search with its future. Search calls {@link #shouldStop(long, PriorityQueue)}
+ * after every expansion to check cancellation and timeout and to report progress.
+ */
+class SolveControl {
+
+    // Future of running search. Search stops when it is done (cancelled or timed out).
+    private final CompletableFuture<String> future;
+
+    // Options of search
+    private final SolveOptions options;
+
+    // System.nanoTime() of next progress report
+    private long nextProgress;
+
+    // System.nanoTime() when timeout elapses. Only used if options have timeout.
+    private final long deadline;
+
+    // Progress when search finished. Null if search did not finish or there is no progress listener.
+    private SolveProgress finishProgress;
+
+    SolveControl(CompletableFuture<String> future, SolveOptions options) {
+        this.future = future;
+        this.options = options;
+        long now = System.nanoTime();
+        nextProgress = now + options.progressPeriod().toNanos();
+        deadline = options.timeout() == null ? 0 : now + options.timeout().toNanos();
+    }
+
+    /**
+     * Checks whether search should stop and reports progress if progress period elapsed.
+     * @param expandedNodes number of visited nodes
+     * @param frontier unvisited nodes
+     * @return true if search should stop
+     */
+    boolean shouldStop(long expandedNodes, PriorityQueue<Node> frontier) {
+        if (future.isDone()) {
+            return true;
+        }
+        if (options.timeout() == null && options.progressListener() == null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        // Future also times out on its own, but that needs the timer thread to run. Search thread checks it directly.
+        if (options.timeout() != null && now - deadline >= 0) {
+            future.completeExceptionally(new TimeoutException());
+            return true;
+        }
+        if (options.progressListener() != null && now - nextProgress >= 0) {
+            options.progressListener().accept(progress(expandedNodes, frontier));
+            nextProgress = now + options.progressPeriod().toNanos();
+        }
+        return false;
+    }
+
+    /**
+     * Stores progress of finished search. Called by search before it releases solver, because frontier is cleared
+     * by the next search.
+     * @param expandedNodes number of visited nodes
+     * @param frontier unvisited nodes
+     */
+    void finish(long expandedNodes, PriorityQueue<Node> frontier) {
+        if (options.progressListener() != null) {
+            finishProgress = progress(expandedNodes, frontier);
+        }
+    }
+
+    /**
+     * Reports progress stored by {@link #finish(long, PriorityQueue)} to listener, if there is any.
+     */
+    void reportFinish() {
+        if (finishProgress != null) {
+            options.progressListener().accept(finishProgress);
+        }
+    }
+
+    private SolveProgress progress(long expandedNodes, PriorityQueue<Node> frontier) {
+        Node best = frontier.peek();
+        return new SolveProgress(frontier.size(), best == null ? 0 : best.getFCost(), expandedNodes);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package solver;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * SolveOptions record holds options of {@link SolverCommons#solveAsync(map.Tile, map.Tile, SolveOptions)}.
+ * Use {@link #defaults(Executor)} and change options with "with" methods.
+ * @param timeout maximum duration of search, measured from the solveAsync call (time waiting in executor queue
+ *                counts as well). Null means no deadline.
+ * @param progressListener called periodically from the solving thread. Null means no progress is reported.
+ * @param progressPeriod minimal time between two progress reports
+ * @param executor executor on which search runs. Required, see {@link #defaults(Executor)}.
+ */
+public record SolveOptions(Duration timeout, Consumer<SolveProgress> progressListener, Duration progressPeriod,
+                           Executor executor) {
+
+    public SolveOptions {
+        Objects.requireNonNull(executor, "executor");
+        Objects.requireNonNull(progressPeriod, "progressPeriod");
+    }
+
+    /**
+     * Creates default options. No deadline and no progress listener.
+     * There is no default executor on purpose. Search is CPU bound and a hard level keeps its thread busy until
+     * timeout, so it should run on executor dedicated to solving and not on a shared one (like common fork join pool).
+     * @param executor executor on which search runs
+     * @return default options
+     */
+    public static SolveOptions defaults(Executor executor) {
+        return new SolveOptions(null, null, Duration.ofMillis(100), executor);
+    }
+
+    public SolveOptions withTimeout(Duration timeout) {
+        return new SolveOptions(timeout, progressListener, progressPeriod, executor);
+    }
+
+    public SolveOptions withProgressListener(Consumer<SolveProgress> progressListener, Duration progressPeriod) {
+        return new SolveOptions(timeout, progressListener, progressPeriod, executor);
+    }
+
+    public SolveOptions withExecutor(Executor executor) {
+        return new SolveOptions(timeout, progressListener, progressPeriod, executor);
+    }
+}
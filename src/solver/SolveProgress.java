@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package solver;
+
+/**
+ * SolveProgress record holds snapshot of running search. Reported to progress listener of {@link SolveOptions}.
+ * @param frontierSize number of unvisited nodes
+ * @param bestFCost lowest F-cost of unvisited nodes (0 if there are none)
+ * @param expandedNodes number of visited nodes so far
+ */
+public record SolveProgress(int frontierSize, int bestFCost, long expandedNodes) {
+}
@@ -6,6 +6,8 @@ package solver;
 
 import map.Tile;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Solver commons interface.
  * Contains common methods which every solver should have.
@@ -14,6 +16,16 @@ public interface SolverCommons {
 
     void solve(Tile sokoban, Tile box);
 
+    /**
+     * Solves problem on executor of options. Search can be stopped by cancelling returned future or by timeout.
+     * @param sokoban Start sokoban position
+     * @param box Start box position
+     * @param options timeout, progress listener and executor of search
+     * @return future completed with {@link #getResult()}, or exceptionally with TimeoutException when timeout of
+     * options (measured from this call) elapses
+     */
+    CompletableFuture<String> solveAsync(Tile sokoban, Tile box, SolveOptions options);
+
     String getResult();
 
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package solver;
+
+import map.LevelGenerator;
+import map.MapFactory;
+import map.Tile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ConcurrentSolveTest checks that concurrent {@link AStarSolver#solveAsync(Tile, Tile, SolveOptions)} calls on one
+ * solver complete with result and final progress of their own search, not of a search which started after them.
+ * Run with {@code java -cp <classes of src and test> solver.ConcurrentSolveTest}, exits with 1 on failure.
+ */
+public class ConcurrentSolveTest {
+
+    // Number of rounds, every round starts SOLVES searches at once
+    private static final int ROUNDS = 20;
+    private static final int SOLVES = 8;
+    private static final int THREADS = 4;
+
+    public static void main(String[] args) throws Exception {
+        Tile[][] map = loadLevel();
+        Tile sokoban = MapFactory.lastSokoban;
+        Tile box = MapFactory.lastBox;
+        Tile finish = MapFactory.lastFinish;
+
+        AStarSolver reference = new AStarSolver(map, finish);
+        reference.solve(sokoban, box);
+        String expectedResult = reference.getResult();
+        long expectedExpansions = reference.getExpandedNodes();
+
+        AStarSolver solver = new AStarSolver(map, finish);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int failures = 0;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<CompletableFuture<String>> futures = new ArrayList<>();
+                List<AtomicReference<SolveProgress>> progresses = new ArrayList<>();
+                for (int i = 0; i < SOLVES; i++) {
+                    AtomicReference<SolveProgress> progress = new AtomicReference<>();
+                    SolveOptions options = SolveOptions.defaults(executor)
+                            .withProgressListener(progress::set, Duration.ofHours(1));
+                    futures.add(solver.solveAsync(sokoban, box, options));
+                    progresses.add(progress);
+                }
+                for (int i = 0; i < SOLVES; i++) {
+                    String result = futures.get(i).get(30, TimeUnit.SECONDS);
+                    SolveProgress progress = progresses.get(i).get();
+                    if (!expectedResult.equals(result)) {
+                        System.out.println("Round " + round + ", solve " + i + ": wrong result " + result);
+                        failures++;
+                    } else if (progress == null || progress.expandedNodes() != expectedExpansions) {
+                        System.out.println("Round " + round + ", solve " + i + ": wrong final progress " + progress);
+                        failures++;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failures > 0) {
+            System.out.println(failures + " of " + ROUNDS * SOLVES + " concurrent solves failed");
+            System.exit(1);
+        }
+        System.out.println("All " + ROUNDS * SOLVES + " concurrent solves passed");
+    }
+
+    /**
+     * Loads generated level which takes a few milliseconds to solve, so searches overlap.
+     */
+    private static Tile[][] loadLevel() throws IOException {
+        Path file = Files.createTempFile("sokoban-level", ".txt");
+        try {
+            new LevelGenerator(50, 0.2, 0.1).writeToFile(file.toString(), 1);
+            return MapFactory.loadFromFile(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
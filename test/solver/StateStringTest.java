@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Matej Kandráč
+ */
+
+package solver;
+
+import map.MapFactory;
+import map.Tile;
+
+import java.io.IOException;
+
+/**
+ * StateStringTest checks that {@link Node#stateString()} is different for different states.
+ * Same string for different states makes solver skip reachable states, so solvable level reports no solution.
+ * map5.txt is generated level (size 27, wall density 0.5, corridor ratio 0.1, seed 31) which was not solved because
+ * of that. Run from project directory with {@code java -cp <classes of src and test> solver.StateStringTest},
+ * exits with 1 on failure.
+ */
+public class StateStringTest {
+
+    public static void main(String[] args) throws IOException {
+        // Digits of (1,11) and (11,1) are the same, only separators tell the positions apart
+        Tile destination = new Tile(2, 2, true);
+        Tile finish = new Tile(0, 0, true);
+        Node first = new Node(destination, null, null, destination, new Tile(1, 11, true), 0, null, finish);
+        Node second = new Node(destination, null, null, destination, new Tile(11, 1, true), 0, null, finish);
+        if (first.stateString().equals(second.stateString())) {
+            System.out.println("Different states have the same string " + first.stateString());
+            System.exit(1);
+        }
+
+        Tile[][] map = MapFactory.loadFromFile("map5.txt");
+        AStarSolver solver = new AStarSolver(map, MapFactory.lastFinish);
+        solver.solve(MapFactory.lastSokoban, MapFactory.lastBox);
+        if (solver.getResult().equals("There is no solution")) {
+            System.out.println("map5.txt has solution, but solver did not find it");
+            System.exit(1);
+        }
+        System.out.println("State strings are unique, map5.txt solved in " + solver.getExpandedNodes() + " expansions");
+    }
+
+}